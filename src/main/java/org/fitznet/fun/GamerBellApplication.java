@@ -3,8 +3,10 @@ package org.fitznet.fun;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "org.fitznet.fun")
+@EnableScheduling
 @Slf4j
 public class GamerBellApplication {
 
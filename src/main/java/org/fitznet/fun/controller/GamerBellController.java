@@ -3,15 +3,21 @@ package org.fitznet.fun.controller;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.fitznet.fun.dto.BellCountDto;
+import org.fitznet.fun.dto.PressHistoryDto;
 import org.fitznet.fun.service.ButtonService;
+import org.fitznet.fun.service.EventLogService;
 import org.fitznet.fun.service.FirmwareService;
+import org.fitznet.fun.service.PressHistoryService;
+import org.fitznet.fun.store.RollupResolution;
 import org.fitznet.fun.utils.JsonUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import static org.fitznet.fun.utils.Constants.ESP32_ERROR_HEADER;
@@ -25,11 +31,19 @@ public class GamerBellController {
 
     final ButtonService buttonService;
 
-    final FirmwareService firmwareService;
+    // Resolved on first use, FirmwareService is @Lazy
+    final ObjectProvider<FirmwareService> firmwareServiceProvider;
 
-    public GamerBellController(ButtonService buttonService, FirmwareService firmwareService) {
+    final PressHistoryService pressHistoryService;
+
+    final EventLogService eventLogService;
+
+    public GamerBellController(ButtonService buttonService, ObjectProvider<FirmwareService> firmwareServiceProvider,
+                               PressHistoryService pressHistoryService, EventLogService eventLogService) {
         this.buttonService = buttonService;
-        this.firmwareService = firmwareService;
+        this.firmwareServiceProvider = firmwareServiceProvider;
+        this.pressHistoryService = pressHistoryService;
+        this.eventLogService = eventLogService;
     }
 
     @GetMapping(value = "/count", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -42,28 +56,36 @@ public class GamerBellController {
         return JsonUtils.OBJECT_MAPPER.writeValueAsString(bellCountDto);
     }
 
+    @GetMapping(value = "/api/presses/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public String getPressHistory(
+            @RequestParam(value = "deviceId", required = false) String deviceId,
+            @RequestParam(value = "resolution", defaultValue = "HOUR") RollupResolution resolution,
+            @RequestParam(value = "from", required = false) Long from,
+            @RequestParam(value = "to", required = false) Long to) throws JsonProcessingException {
+
+        // Defaults to the last 24 buckets of the requested resolution
+        long toMillis = to != null ? to : System.currentTimeMillis();
+        long fromMillis = from != null ? from : toMillis - 23 * resolution.getBucketMillis();
+
+        PressHistoryDto history = pressHistoryService.getHistory(deviceId, resolution, fromMillis, toMillis);
+        return JsonUtils.OBJECT_MAPPER.writeValueAsString(history);
+    }
+
     @GetMapping("/api/firmware/latest")
     public ResponseEntity<Resource> checkForUpdate(
             @RequestHeader(value = ESP32_VERSION_HEADER, required = false) String currentVersion,
             @RequestHeader(value = ESP32_MAC_ADDRESS_HEADER, required = false) String deviceMac) {
 
-        log.info("Firmware update check - Device MAC: {}, Current Version: {}",
-                 deviceMac != null ? deviceMac : "unknown",
-                 currentVersion != null ? currentVersion : "unknown");
-
+        FirmwareService firmwareService = firmwareServiceProvider.getObject();
         String latestVersion = firmwareService.getLatestVersion();
         log.debug("Latest available version: {}", latestVersion);
 
-        if (currentVersion != null && currentVersion.equals(latestVersion)) {
-            // Device is up to date
-            log.info("Device is up to date (version: {})", currentVersion);
+        boolean upToDate = currentVersion != null && currentVersion.equals(latestVersion);
+        eventLogService.firmwareCheck(deviceMac, currentVersion, latestVersion, upToDate);
+        if (upToDate) {
             return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
         }
 
-        log.info("Device needs update from {} to {}",
-                 currentVersion != null ? currentVersion : "unknown",
-                 latestVersion);
-
         // Check if cached firmware file matches the latest version
         if (!firmwareService.isFirmwareUpToDate(latestVersion)) {
             log.info("Cached firmware is outdated or missing. Deleting old firmware and downloading version: {}", latestVersion);
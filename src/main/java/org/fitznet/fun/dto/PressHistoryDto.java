@@ -0,0 +1,41 @@
+package org.fitznet.fun.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.fitznet.fun.store.RollupResolution;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PressHistoryDto {
+
+    private RollupResolution resolution;
+
+    private Long bucketMillis;
+
+    // Start of the first bucket, epoch millis
+    private Long from;
+
+    // Start of the last bucket, epoch millis
+    private Long to;
+
+    private List<DevicePressSeriesDto> devices;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DevicePressSeriesDto {
+
+        private String deviceId;
+
+        private Long total;
+
+        private long[] counts;
+    }
+}
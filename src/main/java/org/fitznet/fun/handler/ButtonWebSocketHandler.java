@@ -4,6 +4,7 @@ import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.fitznet.fun.dto.ButtonEventDto;
 import org.fitznet.fun.service.ButtonService;
+import org.fitznet.fun.service.EventLogService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -20,8 +21,11 @@ public class ButtonWebSocketHandler extends TextWebSocketHandler {
 
     private final ButtonService buttonService;
 
-    public ButtonWebSocketHandler(ButtonService buttonService) {
+    private final EventLogService eventLogService;
+
+    public ButtonWebSocketHandler(ButtonService buttonService, EventLogService eventLogService) {
         this.buttonService = buttonService;
+        this.eventLogService = eventLogService;
     }
 
     @Override
@@ -38,19 +42,22 @@ public class ButtonWebSocketHandler extends TextWebSocketHandler {
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) {
-        log.info("Received message from client {}: {}", session.getId(), message.getPayload());
+        log.debug("Received message from client {}: {}", session.getId(), message.getPayload());
         try {
             ButtonEventDto event = OBJECT_MAPPER.readValue(message.getPayload(), ButtonEventDto.class);
-            log.info("Parsed message: {}", event);
+            eventLogService.buttonEvent(session.getId(), event);
+
+            if (event.getButtonEvent() != null) {
+                buttonService.logEvent(event.getDeviceId(), event.getButtonEvent().name());
+            }
 
             if (PRESSED.equals(event.getButtonEvent()) || RELEASED.equals(event.getButtonEvent())) {
-                log.info("Broadcasting message to connected clients: {}", event);
                 String responseJson = OBJECT_MAPPER.writeValueAsString(event);
                 buttonService.broadcastMessage(responseJson);
             }
 
         } catch (Exception e) {
-            log.error("Error handling message: {}", e.getMessage());
+            eventLogService.error("Error handling message", session.getId(), message.getPayload(), e);
         }
     }
 }
\ No newline at end of file
@@ -8,12 +8,20 @@ import org.springframework.web.socket.WebSocketSession;
 import java.io.IOException;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import static org.fitznet.fun.dto.ButtonEvent.PRESSED;
+
 @Slf4j
 @Service
 public class ButtonService {
 
     private final CopyOnWriteArrayList<WebSocketSession> sessions = new CopyOnWriteArrayList<>();
 
+    private final PressHistoryService pressHistoryService;
+
+    public ButtonService(PressHistoryService pressHistoryService) {
+        this.pressHistoryService = pressHistoryService;
+    }
+
     public void addSession(WebSocketSession session) {
         sessions.add(session);
     }
@@ -34,13 +42,15 @@ public class ButtonService {
                     session.sendMessage(new TextMessage(message));
                 }
             } catch (IOException e) {
-                log.error("Error broadcasting message: {}", e.getMessage());
+                log.error("Error broadcasting message to session {}: {}", session.getId(), e.getMessage(), e);
             }
         }
     }
 
     public void logEvent(String deviceId, String eventType) {
-        //save to some db in the future
-        log.info("Logging event - Device: {}, Event: {}", deviceId, eventType);
+        log.debug("Logging event - Device: {}, Event: {}", deviceId, eventType);
+        if (PRESSED.name().equals(eventType)) {
+            pressHistoryService.recordPress(deviceId);
+        }
     }
 }
@@ -0,0 +1,253 @@
+package org.fitznet.fun.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.fitznet.fun.dto.ButtonEventDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Event logging for the WebSocket and firmware poll hot paths.
+ * <p>
+ * Callers only update counters and, for events that pass sampling and the per-device rate
+ * limit, enqueue a record. Formatting and writing happen on a background thread, and a
+ * summary of all events (logged or not) is written once per interval. Errors bypass all of
+ * this and are logged synchronously in full.
+ */
+@Slf4j(topic = "org.fitznet.fun.events")
+@Service
+public class EventLogService {
+
+    // Device ids come from unauthenticated payloads, so per-device state is capped
+    static final int MAX_TRACKED_DEVICES = 1024;
+
+    private final double sampleRatio;
+    private final int deviceLimitPerSecond;
+    private final long summaryIntervalMs;
+    private final LongSupplier clock;
+
+    private final BlockingQueue<EventRecord> queue;
+    private final Thread writer;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Set<String> intervalDevices = ConcurrentHashMap.newKeySet();
+    private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+    private final RateLimit overflowRateLimit = new RateLimit();
+
+    @Autowired
+    public EventLogService(@Value("${event-log.sample-ratio:1.0}") double sampleRatio,
+                           @Value("${event-log.device-limit-per-second:2}") int deviceLimitPerSecond,
+                           @Value("${event-log.summary-interval-ms:10000}") long summaryIntervalMs,
+                           @Value("${event-log.queue-capacity:1024}") int queueCapacity) {
+        this(sampleRatio, deviceLimitPerSecond, summaryIntervalMs, queueCapacity, System::currentTimeMillis);
+    }
+
+    EventLogService(double sampleRatio, int deviceLimitPerSecond, long summaryIntervalMs, int queueCapacity,
+                    LongSupplier clock) {
+        this.sampleRatio = sampleRatio;
+        this.deviceLimitPerSecond = deviceLimitPerSecond;
+        this.summaryIntervalMs = summaryIntervalMs;
+        this.clock = clock;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = Thread.ofPlatform()
+                .name("event-log")
+                .daemon()
+                .start(this::drain);
+    }
+
+    public void buttonEvent(String sessionId, ButtonEventDto event) {
+        record(new EventRecord(String.valueOf(event.getButtonEvent()), event.getDeviceId(), sessionId,
+                event.getFirmwareVersion(), null, null));
+    }
+
+    public void firmwareCheck(String deviceMac, String currentVersion, String latestVersion, boolean upToDate) {
+        record(new EventRecord("FIRMWARE_CHECK", deviceMac, null, currentVersion, latestVersion,
+                upToDate ? "up-to-date" : "update"));
+    }
+
+    /**
+     * Logs an error synchronously, never sampled or rate limited
+     */
+    public void error(String message, String sessionId, String payload, Exception e) {
+        log.error("{} - session={} payload={}", message, sessionId, payload, e);
+    }
+
+    /**
+     * Writes the summary line for the events seen since the previous call
+     */
+    @Scheduled(fixedRateString = "${event-log.summary-interval-ms:10000}",
+               initialDelayString = "${event-log.summary-interval-ms:10000}")
+    public void logSummary() {
+        long total = events.sumThenReset();
+        int devices = intervalDevices.size();
+        intervalDevices.clear();
+        long writtenLines = logged.sumThenReset();
+        long skippedBySampling = sampledOut.sumThenReset();
+        long skippedByLimit = rateLimited.sumThenReset();
+        long skippedByQueue = dropped.sumThenReset();
+
+        // Rate limit state only matters within the current second, drop devices that went quiet
+        long nowSecond = clock.getAsLong() / 1000;
+        rateLimits.values().removeIf(limit -> limit.second.get() < nowSecond);
+
+        if (total > 0) {
+            log.info("{} events from {}{} devices in the last {}s (logged={} sampled={} rate-limited={} queue-full={})",
+                     total, devices, devices >= MAX_TRACKED_DEVICES ? "+" : "", summaryIntervalMs / 1000,
+                     writtenLines, skippedBySampling, skippedByLimit, skippedByQueue);
+        }
+    }
+
+    /**
+     * Current counters without resetting them
+     */
+    Counters counters() {
+        return new Counters(events.sum(), logged.sum(), sampledOut.sum(), rateLimited.sum(), dropped.sum());
+    }
+
+    @PreDestroy
+    public void close() {
+        writer.interrupt();
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<EventRecord> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (EventRecord event : remaining) {
+            write(event);
+        }
+    }
+
+    private void record(EventRecord event) {
+        String deviceKey = event.deviceId() != null ? event.deviceId() : "unknown";
+        events.increment();
+        if (intervalDevices.size() < MAX_TRACKED_DEVICES) {
+            intervalDevices.add(deviceKey);
+        }
+
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        if (sampleRatio < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRatio) {
+            sampledOut.increment();
+            return;
+        }
+        if (!rateLimitFor(deviceKey).tryAcquire(clock.getAsLong() / 1000, deviceLimitPerSecond)) {
+            rateLimited.increment();
+            return;
+        }
+        if (!queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    private RateLimit rateLimitFor(String deviceKey) {
+        RateLimit limit = rateLimits.get(deviceKey);
+        if (limit != null) {
+            return limit;
+        }
+        // Devices beyond the cap share one limit, so a flood of made-up ids cannot flood the log
+        if (rateLimits.size() >= MAX_TRACKED_DEVICES) {
+            return overflowRateLimit;
+        }
+        return rateLimits.computeIfAbsent(deviceKey, k -> new RateLimit());
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                write(queue.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(EventRecord event) {
+        log.info("{}", event.format());
+        logged.increment();
+    }
+
+    record Counters(long events, long logged, long sampledOut, long rateLimited, long dropped) {
+    }
+
+    private record EventRecord(String type, String deviceId, String sessionId, String version,
+                               String latestVersion, String result) {
+
+        String format() {
+            StringBuilder line = new StringBuilder();
+            append(line, "event", type);
+            append(line, "device", deviceId != null ? deviceId : "unknown");
+            append(line, "session", sessionId);
+            append(line, "version", version);
+            append(line, "latest", latestVersion);
+            append(line, "result", result);
+            return line.toString();
+        }
+
+        /**
+         * Appends key=value, values come from unauthenticated payloads so they are escaped
+         * to keep one event on one line and to stop them from adding fields of their own
+         */
+        private static void append(StringBuilder line, String key, String value) {
+            if (value == null) {
+                return;
+            }
+            if (!line.isEmpty()) {
+                line.append(' ');
+            }
+            line.append(key).append('=');
+
+            boolean quote = value.isEmpty();
+            int start = line.length();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (Character.isISOControl(c)) {
+                    line.append(String.format("\\u%04x", (int) c));
+                } else if (c == '"' || c == '\\') {
+                    line.append('\\').append(c);
+                    quote = true;
+                } else {
+                    quote |= c == ' ' || c == '=';
+                    line.append(c);
+                }
+            }
+            if (quote) {
+                line.insert(start, '"').append('"');
+            }
+        }
+    }
+
+    private static class RateLimit {
+        private final AtomicLong second = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicInteger loggedThisSecond = new AtomicInteger();
+
+        boolean tryAcquire(long nowSecond, int limit) {
+            long current = second.get();
+            if (current != nowSecond && second.compareAndSet(current, nowSecond)) {
+                loggedThisSecond.set(0);
+            }
+            return loggedThisSecond.incrementAndGet() <= limit;
+        }
+    }
+}
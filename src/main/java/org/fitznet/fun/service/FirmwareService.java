@@ -3,6 +3,7 @@ package org.fitznet.fun.service;
 import lombok.extern.slf4j.Slf4j;
 import org.fitznet.fun.dto.GitHubReleaseDto;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
@@ -21,7 +22,12 @@ import java.time.Duration;
 import static org.springframework.web.reactive.function.client.WebClientResponseException.*;
 import static reactor.netty.http.client.HttpClient.*;
 
+/**
+ * Created on the first firmware request rather than at startup, so the WebClients and
+ * Reactor Netty are not initialized while devices are reconnecting.
+ */
 @Slf4j
+@Lazy
 @Service
 public class FirmwareService {
 
@@ -0,0 +1,119 @@
+package org.fitznet.fun.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.fitznet.fun.dto.PressHistoryDto;
+import org.fitznet.fun.store.RollupResolution;
+import org.fitznet.fun.store.RollupStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class PressHistoryService {
+
+    // Null when the store could not be opened, press history is then disabled instead of blocking startup
+    private final RollupStore store;
+
+    public PressHistoryService(@Value("${rollup.storage.path:./rollup}") String storagePath,
+                               @Value("${rollup.max-devices:256}") int maxDevices,
+                               @Value("${rollup.minute.buckets:1440}") int minuteBuckets,
+                               @Value("${rollup.hour.buckets:2160}") int hourBuckets,
+                               @Value("${rollup.day.buckets:400}") int dayBuckets,
+                               @Value("${rollup.eviction.idle-ms:86400000}") long evictAfterIdleMs) {
+        RollupStore opened = null;
+        try {
+            opened = new RollupStore(Paths.get(storagePath), maxDevices, minuteBuckets, hourBuckets, dayBuckets,
+                                     evictAfterIdleMs);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to open press history store at {}, press history is disabled: {}",
+                      storagePath, e.getMessage(), e);
+        }
+        this.store = opened;
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    public void recordPress(String deviceId) {
+        if (store == null) {
+            return;
+        }
+        if (!store.record(deviceId, System.currentTimeMillis())) {
+            log.debug("Press from device {} was not recorded in history", deviceId);
+        }
+    }
+
+    /**
+     * Builds the press history for one device, or for every tracked device when deviceId is null
+     * @param fromMillis Start of the range (epoch millis), clamped to the retention of the resolution
+     * @param toMillis End of the range (epoch millis), inclusive
+     */
+    public PressHistoryDto getHistory(String deviceId, RollupResolution resolution, long fromMillis, long toMillis) {
+        long fromBucket = store != null
+                ? store.firstBucket(resolution, fromMillis, toMillis)
+                : resolution.bucketOf(Math.min(fromMillis, toMillis));
+        List<String> deviceIds = store == null ? List.of()
+                : deviceId != null ? List.of(deviceId) : store.getDeviceIds();
+
+        List<PressHistoryDto.DevicePressSeriesDto> series = new ArrayList<>(deviceIds.size());
+        for (String id : deviceIds) {
+            long[] counts = store.series(id, resolution, fromMillis, toMillis);
+            if (counts == null) {
+                continue;
+            }
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            series.add(PressHistoryDto.DevicePressSeriesDto.builder()
+                    .deviceId(id)
+                    .total(total)
+                    .counts(counts)
+                    .build());
+        }
+
+        return PressHistoryDto.builder()
+                .resolution(resolution)
+                .bucketMillis(resolution.getBucketMillis())
+                .from(resolution.startOf(fromBucket))
+                .to(resolution.startOf(resolution.bucketOf(toMillis)))
+                .devices(series)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${rollup.compaction.interval-ms:60000}",
+               initialDelayString = "${rollup.compaction.interval-ms:60000}")
+    public void compact() {
+        if (store == null) {
+            return;
+        }
+        int released = store.compact(System.currentTimeMillis());
+        if (released > 0) {
+            log.info("Press history compaction released {} inactive devices", released);
+        }
+        long dropped = store.takeDroppedPresses();
+        if (dropped > 0) {
+            log.warn("Press history is full of active devices, dropped {} presses from new devices", dropped);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.error("Failed to close press history store: {}", e.getMessage(), e);
+        }
+    }
+}
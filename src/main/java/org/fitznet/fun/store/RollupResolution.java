@@ -0,0 +1,27 @@
+package org.fitznet.fun.store;
+
+import lombok.Getter;
+
+@Getter
+public enum RollupResolution {
+    MINUTE(60_000L),
+    HOUR(3_600_000L),
+    DAY(86_400_000L);
+
+    private final long bucketMillis;
+
+    RollupResolution(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * Converts an epoch millisecond timestamp into the index of the bucket containing it
+     */
+    public long bucketOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, bucketMillis);
+    }
+
+    public long startOf(long bucket) {
+        return bucket * bucketMillis;
+    }
+}
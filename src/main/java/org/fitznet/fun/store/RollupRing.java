@@ -0,0 +1,223 @@
+package org.fitznet.fun.store;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Fixed size ring of press counters for a single resolution, backed by a memory-mapped file.
+ * <p>
+ * File layout: a 32 byte header, one long per ring slot holding the bucket the slot currently
+ * represents, then one int counter per (device, slot) stored device-major so a single device's
+ * history is one contiguous column. Not thread-safe, callers synchronize.
+ */
+class RollupRing implements Closeable {
+
+    private static final int MAGIC = 0x47425252; // "GBRR"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    @Getter
+    private final RollupResolution resolution;
+    @Getter
+    private final int buckets;
+    private final int maxDevices;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final LongBuffer slotBuckets;
+    private final IntBuffer counts;
+
+    RollupRing(Path file, RollupResolution resolution, int buckets, int maxDevices) throws IOException {
+        this.resolution = resolution;
+        this.buckets = buckets;
+        this.maxDevices = maxDevices;
+
+        long slotBytes = (long) buckets * Long.BYTES;
+        long countBytes = (long) buckets * maxDevices * Integer.BYTES;
+        long size = HEADER_BYTES + slotBytes + countBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Rollup ring for " + resolution + " would exceed 2GB: " + size + " bytes");
+        }
+
+        this.channel = FileChannel.open(file, CREATE, READ, WRITE);
+        try {
+            // Validate before mapping, mapping grows the file and a reset would wipe history
+            boolean initialized = checkExistingLayout(file, size);
+            this.mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            this.slotBuckets = mapped.slice(HEADER_BYTES, (int) slotBytes).asLongBuffer();
+            this.counts = mapped.slice(HEADER_BYTES + (int) slotBytes, (int) countBytes).asIntBuffer();
+            if (!initialized) {
+                reset();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Adds one press to the given device column
+     * @return false if the bucket has already fallen out of the ring
+     */
+    boolean increment(int device, long bucket) {
+        int slot = slotOf(bucket);
+        long current = slotBuckets.get(slot);
+        if (current != bucket) {
+            if (current != EMPTY && current > bucket) {
+                return false;
+            }
+            clearSlot(slot);
+            slotBuckets.put(slot, bucket);
+        }
+        int index = device * buckets + slot;
+        counts.put(index, counts.get(index) + 1);
+        return true;
+    }
+
+    /**
+     * Copies the counts for buckets [fromBucket, fromBucket + out.length) of a device into out
+     * @return sum of the copied counts
+     */
+    long read(int device, long fromBucket, long[] out) {
+        long total = 0;
+        int base = device * buckets;
+        for (int i = 0; i < out.length; i++) {
+            long bucket = fromBucket + i;
+            int slot = slotOf(bucket);
+            long value = slotBuckets.get(slot) == bucket ? counts.get(base + slot) : 0;
+            out[i] = value;
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Whether the device has any presses in a live (non expired) slot
+     */
+    boolean hasCounts(int device) {
+        int base = device * buckets;
+        for (int slot = 0; slot < buckets; slot++) {
+            if (slotBuckets.get(slot) != EMPTY && counts.get(base + slot) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Most recent live bucket in which the device has presses
+     * @return the bucket, or Long.MIN_VALUE if the device has none
+     */
+    long lastBucketWithCounts(int device) {
+        int base = device * buckets;
+        long last = EMPTY;
+        for (int slot = 0; slot < buckets; slot++) {
+            long bucket = slotBuckets.get(slot);
+            if (bucket != EMPTY && bucket > last && counts.get(base + slot) != 0) {
+                last = bucket;
+            }
+        }
+        return last;
+    }
+
+    void clearDevice(int device) {
+        int base = device * buckets;
+        for (int slot = 0; slot < buckets; slot++) {
+            counts.put(base + slot, 0);
+        }
+    }
+
+    /**
+     * Zeroes every slot holding a bucket older than the retention window ending at nowBucket
+     * @return number of slots expired
+     */
+    int expire(long nowBucket) {
+        long oldestLive = nowBucket - buckets + 1;
+        int expired = 0;
+        for (int slot = 0; slot < buckets; slot++) {
+            long bucket = slotBuckets.get(slot);
+            if (bucket != EMPTY && bucket < oldestLive) {
+                clearSlot(slot);
+                slotBuckets.put(slot, EMPTY);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    void force() {
+        mapped.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private int slotOf(long bucket) {
+        return (int) Math.floorMod(bucket, (long) buckets);
+    }
+
+    private void clearSlot(int slot) {
+        for (int device = 0; device < maxDevices; device++) {
+            counts.put(device * buckets + slot, 0);
+        }
+    }
+
+    /**
+     * Checks that an existing file was written with this layout
+     * @return false if the file is new (or was never initialized) and needs a reset
+     * @throws IOException if the file holds history in a different layout
+     */
+    private boolean checkExistingLayout(Path file, long size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // keep reading until the header is complete or the file ends
+        }
+        if (header.position() < HEADER_BYTES || header.getInt(0) == 0) {
+            return false;
+        }
+
+        boolean matches = header.getInt(0) == MAGIC
+                && header.getInt(4) == FORMAT_VERSION
+                && header.getInt(8) == maxDevices
+                && header.getInt(12) == buckets
+                && header.getLong(16) == resolution.getBucketMillis()
+                && channel.size() == size;
+        if (!matches) {
+            throw new IOException("Rollup file " + file.toAbsolutePath() + " was written for " + header.getInt(8)
+                    + " devices and " + header.getInt(12) + " buckets, configured are " + maxDevices + " devices and "
+                    + buckets + " buckets. Restore the previous settings or move the rollup directory away to start over");
+        }
+        return true;
+    }
+
+    private void reset() {
+        for (int slot = 0; slot < buckets; slot++) {
+            slotBuckets.put(slot, EMPTY);
+        }
+        for (int i = 0; i < counts.capacity(); i++) {
+            counts.put(i, 0);
+        }
+        mapped.putInt(0, MAGIC);
+        mapped.putInt(4, FORMAT_VERSION);
+        mapped.putInt(8, maxDevices);
+        mapped.putInt(12, buckets);
+        mapped.putLong(16, resolution.getBucketMillis());
+        mapped.force();
+    }
+}
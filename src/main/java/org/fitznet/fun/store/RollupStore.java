@@ -0,0 +1,308 @@
+package org.fitznet.fun.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded store of per-device press counts downsampled into minute, hour and day rings.
+ * <p>
+ * Every press bumps one counter in each ring, so queries at any resolution read precomputed
+ * buckets instead of raw events. Memory and disk use are fixed by maxDevices and the bucket
+ * count of each ring. When every slot is taken, a new device takes over the least recently pressed
+ * slot only if that device has been idle for evictAfterIdleMillis; otherwise the press is dropped
+ * and counted. Device ids come from unauthenticated messages, so made-up ids must not be able to
+ * wipe the history of devices that are in use.
+ * <p>
+ * The device index is only rewritten by compaction and close, keeping disk I/O off the press path.
+ * A crash loses the slot assignments made since the last compaction.
+ */
+@Slf4j
+public class RollupStore implements Closeable {
+
+    static final String DEVICE_INDEX_FILE = "devices.idx";
+    private static final long NEVER = Long.MIN_VALUE;
+    private static final int MAX_DEVICE_ID_LENGTH = 64;
+
+    private final Path directory;
+    private final int maxDevices;
+    private final Map<RollupResolution, RollupRing> rings = new EnumMap<>(RollupResolution.class);
+    private final Map<String, Integer> deviceSlots = new HashMap<>();
+    private final String[] slotDevices;
+    // Epoch millis of the latest press per slot, used to pick the eviction victim when full
+    private final long[] lastPress;
+    private final long evictAfterIdleMillis;
+    private boolean indexDirty = false;
+    private long droppedPresses = 0;
+
+    public RollupStore(Path directory, int maxDevices, int minuteBuckets, int hourBuckets, int dayBuckets,
+                       long evictAfterIdleMillis) throws IOException {
+        if (maxDevices <= 0) {
+            throw new IllegalArgumentException("Rollup store needs at least one device slot: " + maxDevices);
+        }
+        this.directory = directory;
+        this.maxDevices = maxDevices;
+        this.evictAfterIdleMillis = evictAfterIdleMillis;
+        this.slotDevices = new String[maxDevices];
+        this.lastPress = new long[maxDevices];
+        Arrays.fill(lastPress, NEVER);
+
+        try {
+            Files.createDirectories(directory);
+            openRing(RollupResolution.MINUTE, minuteBuckets);
+            openRing(RollupResolution.HOUR, hourBuckets);
+            openRing(RollupResolution.DAY, dayBuckets);
+            loadDeviceIndex();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Records a single press for a device
+     * @return false if the press was dropped (invalid device id, store full of active devices or too old)
+     */
+    public synchronized boolean record(String deviceId, long epochMillis) {
+        if (!isValidDeviceId(deviceId)) {
+            return false;
+        }
+
+        Integer slot = deviceSlots.get(deviceId);
+        if (slot == null) {
+            slot = registerDevice(deviceId, epochMillis);
+            if (slot == null) {
+                droppedPresses++;
+                return false;
+            }
+        }
+
+        boolean recorded = false;
+        for (RollupRing ring : rings.values()) {
+            recorded |= ring.increment(slot, ring.getResolution().bucketOf(epochMillis));
+        }
+        lastPress[slot] = Math.max(lastPress[slot], epochMillis);
+        return recorded;
+    }
+
+    /**
+     * Reads press counts for a device, one entry per bucket from the bucket containing
+     * fromMillis up to and including the bucket containing toMillis
+     * @return counts per bucket, or null if the device is unknown
+     */
+    public synchronized long[] series(String deviceId, RollupResolution resolution, long fromMillis, long toMillis) {
+        Integer slot = deviceSlots.get(deviceId);
+        if (slot == null) {
+            return null;
+        }
+        long fromBucket = firstBucket(resolution, fromMillis, toMillis);
+        long[] out = new long[(int) (resolution.bucketOf(toMillis) - fromBucket + 1)];
+        rings.get(resolution).read(slot, fromBucket, out);
+        return out;
+    }
+
+    /**
+     * First bucket a query will return, clamped so a query never spans more than the ring holds
+     */
+    public long firstBucket(RollupResolution resolution, long fromMillis, long toMillis) {
+        long toBucket = resolution.bucketOf(toMillis);
+        long fromBucket = resolution.bucketOf(Math.min(fromMillis, toMillis));
+        return Math.max(fromBucket, toBucket - getRetention(resolution) + 1);
+    }
+
+    public synchronized List<String> getDeviceIds() {
+        List<String> ids = new ArrayList<>(deviceSlots.keySet());
+        ids.sort(String::compareTo);
+        return ids;
+    }
+
+    /**
+     * Number of buckets retained at the given resolution
+     */
+    public int getRetention(RollupResolution resolution) {
+        return rings.get(resolution).getBuckets();
+    }
+
+    /**
+     * Presses dropped because every slot belonged to a recently active device, since the last call
+     */
+    public synchronized long takeDroppedPresses() {
+        long dropped = droppedPresses;
+        droppedPresses = 0;
+        return dropped;
+    }
+
+    /**
+     * Expires buckets that fell out of the retention window, releases the slots of devices
+     * with no remaining presses and flushes the mapped files to disk
+     * @return number of device slots released
+     */
+    public synchronized int compact(long nowMillis) {
+        int expired = 0;
+        for (RollupRing ring : rings.values()) {
+            expired += ring.expire(ring.getResolution().bucketOf(nowMillis));
+        }
+
+        int released = 0;
+        RollupRing longest = rings.get(RollupResolution.DAY);
+        for (int slot = 0; slot < maxDevices; slot++) {
+            String deviceId = slotDevices[slot];
+            if (deviceId != null && !longest.hasCounts(slot)) {
+                releaseSlot(slot);
+                released++;
+            }
+        }
+
+        if (indexDirty) {
+            writeDeviceIndex();
+        }
+        for (RollupRing ring : rings.values()) {
+            ring.force();
+        }
+        log.debug("Rollup compaction expired {} buckets and released {} device slots", expired, released);
+        return released;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (indexDirty) {
+            writeDeviceIndex();
+        }
+        for (RollupRing ring : rings.values()) {
+            ring.close();
+        }
+    }
+
+    private void openRing(RollupResolution resolution, int buckets) throws IOException {
+        Path file = directory.resolve(resolution.name().toLowerCase() + ".ring");
+        rings.put(resolution, new RollupRing(file, resolution, buckets, maxDevices));
+    }
+
+    private Integer registerDevice(String deviceId, long epochMillis) {
+        int slot = freeSlot();
+        if (slot < 0) {
+            slot = leastRecentlyPressedSlot();
+            if (lastPress[slot] != NEVER && epochMillis - lastPress[slot] < evictAfterIdleMillis) {
+                return null;
+            }
+            log.debug("Rollup store is full, evicting idle device {} for {}", slotDevices[slot], deviceId);
+            releaseSlot(slot);
+        }
+
+        for (RollupRing ring : rings.values()) {
+            ring.clearDevice(slot);
+        }
+        slotDevices[slot] = deviceId;
+        deviceSlots.put(deviceId, slot);
+        indexDirty = true;
+        log.debug("Tracking press history for device {} in slot {}", deviceId, slot);
+        return slot;
+    }
+
+    private int freeSlot() {
+        for (int slot = 0; slot < maxDevices; slot++) {
+            if (slotDevices[slot] == null) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int leastRecentlyPressedSlot() {
+        int victim = 0;
+        for (int slot = 1; slot < maxDevices; slot++) {
+            if (lastPress[slot] < lastPress[victim]) {
+                victim = slot;
+            }
+        }
+        return victim;
+    }
+
+    private void releaseSlot(int slot) {
+        for (RollupRing ring : rings.values()) {
+            ring.clearDevice(slot);
+        }
+        deviceSlots.remove(slotDevices[slot]);
+        log.debug("Released rollup slot {} of device {}", slot, slotDevices[slot]);
+        slotDevices[slot] = null;
+        lastPress[slot] = NEVER;
+        indexDirty = true;
+    }
+
+    /**
+     * Recovers the latest press of a slot after a restart from the newest non-empty bucket
+     */
+    private long lastPressFromRings(int slot) {
+        long latest = NEVER;
+        for (RollupRing ring : rings.values()) {
+            long bucket = ring.lastBucketWithCounts(slot);
+            if (bucket != NEVER) {
+                latest = Math.max(latest, ring.getResolution().startOf(bucket));
+            }
+        }
+        return latest;
+    }
+
+    private boolean isValidDeviceId(String deviceId) {
+        return deviceId != null
+                && !deviceId.isBlank()
+                && deviceId.length() <= MAX_DEVICE_ID_LENGTH
+                && deviceId.chars().noneMatch(Character::isISOControl);
+    }
+
+    private void loadDeviceIndex() throws IOException {
+        Path index = directory.resolve(DEVICE_INDEX_FILE);
+        if (!Files.exists(index)) {
+            return;
+        }
+
+        for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            int separator = line.indexOf('\t');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                int slot = Integer.parseInt(line.substring(0, separator));
+                String deviceId = line.substring(separator + 1);
+                if (slot >= 0 && slot < maxDevices && slotDevices[slot] == null && isValidDeviceId(deviceId)) {
+                    slotDevices[slot] = deviceId;
+                    deviceSlots.put(deviceId, slot);
+                    lastPress[slot] = lastPressFromRings(slot);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Skipping malformed rollup index line: {}", line);
+            }
+        }
+        log.info("Loaded press history for {} devices from {}", deviceSlots.size(), directory.toAbsolutePath());
+    }
+
+    private void writeDeviceIndex() {
+        StringBuilder content = new StringBuilder();
+        for (int slot = 0; slot < maxDevices; slot++) {
+            if (slotDevices[slot] != null) {
+                content.append(slot).append('\t').append(slotDevices[slot]).append('\n');
+            }
+        }
+
+        try {
+            Path index = directory.resolve(DEVICE_INDEX_FILE);
+            Path temp = directory.resolve(DEVICE_INDEX_FILE + ".tmp");
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            indexDirty = false;
+        } catch (IOException e) {
+            log.error("Failed to write rollup device index: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.fitznet.fun;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.fitznet.fun.utils.Constants.ESP32_VERSION_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Guards the lazy FirmwareService: injecting it directly anywhere would bring back the
+ * WebClient and Reactor Netty setup at startup.
+ */
+@Import(TestcontainersConfiguration.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        // No repo configured, so the version check answers locally without calling GitHub
+        "firmware.github.repo=",
+        "rollup.storage.path=build/test-rollup"
+})
+class FirmwareServiceLazyInitTests {
+
+    @Autowired
+    ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Test
+    void firmwareServiceIsCreatedOnFirstFirmwareRequest() {
+        assertFalse(beanFactory.containsSingleton("firmwareService"),
+                "FirmwareService must not be created at startup");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ESP32_VERSION_HEADER, "v1.0.0");
+        ResponseEntity<byte[]> response = restTemplate.exchange("/api/firmware/latest", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertTrue(beanFactory.containsSingleton("firmwareService"));
+    }
+}
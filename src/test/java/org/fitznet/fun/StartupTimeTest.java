@@ -0,0 +1,163 @@
+package org.fitznet.fun;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Starts the built boot jar the way the Docker image does (extracted jar, CDS training run,
+ * then -XX:SharedArchiveFile with the AOT code and the fast-start profile) and measures the
+ * time from JVM start until /ws accepts a WebSocket handshake.
+ * <p>
+ * Run with ./gradlew startupTest. The measured time is always printed; it is only enforced
+ * when a budget is given with -PstartupBudgetMs, set that from the figure measured on CI.
+ */
+@Tag("startup")
+class StartupTimeTest {
+
+    private static final long POLL_INTERVAL_MS = 50;
+    // Upper bound when no budget is set, only there so a hung startup fails instead of blocking the build
+    private static final long UNBUDGETED_TIMEOUT_MS = 60_000;
+
+    @TempDir
+    Path workDir;
+
+    @Test
+    void webSocketAcceptsConnectionsAsShipped() throws Exception {
+        String bootJar = System.getProperty("startup.boot-jar", "");
+        assumeTrue(!bootJar.isBlank(), "startup.boot-jar not set, run through ./gradlew startupTest");
+
+        Path appDir = workDir.resolve("app");
+        run("extract", List.of("-Djarmode=tools", "-jar", bootJar, "extract", "--destination", appDir.toString()),
+            Map.of());
+        Path applicationJar = appDir.resolve(Path.of(bootJar).getFileName());
+        Path archive = appDir.resolve("application.jsa");
+
+        // Same training run as the Dockerfile, against throwaway storage
+        run("training", List.of(
+                "-XX:ArchiveClassesAtExit=" + archive,
+                "-Dspring.aot.enabled=true",
+                "-Dspring.context.exit=onRefresh",
+                "-jar", applicationJar.toString()),
+            environment("training", freePort()));
+
+        // Same command line as the Docker ENTRYPOINT
+        List<String> entrypoint = List.of(
+                "-XX:SharedArchiveFile=" + archive,
+                "-Dspring.aot.enabled=true",
+                "-jar", applicationJar.toString());
+        String budget = System.getProperty("startup.budget-ms", "");
+        assertStartsWithinBudget(entrypoint, budget.isBlank() ? null : Long.parseLong(budget));
+    }
+
+    private void assertStartsWithinBudget(List<String> jvmArgs, Long budgetMs) throws Exception {
+        int port = freePort();
+        Path logFile = workDir.resolve("startup.log");
+        ProcessBuilder builder = new ProcessBuilder(command(jvmArgs))
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile());
+        builder.environment().putAll(environment("startup", port));
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("ws://localhost:" + port + "/ws");
+        long timeoutMs = budgetMs != null ? budgetMs : UNBUDGETED_TIMEOUT_MS;
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    fail("Application exited during startup, see " + logFile);
+                }
+                if (connects(client, uri)) {
+                    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    System.out.printf("JVM start to /ws accepting connections: %d ms (budget %s)%n",
+                                      elapsedMs, budgetMs != null ? budgetMs + " ms" : "not set");
+                    if (budgetMs != null && elapsedMs > budgetMs) {
+                        fail("Startup took " + elapsedMs + " ms, budget is " + budgetMs + " ms");
+                    }
+                    return;
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
+            }
+            fail("/ws did not accept connections within " + timeoutMs + " ms, see " + logFile);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Runs a JVM to completion, failing the test if it does not exit cleanly
+     */
+    private void run(String step, List<String> jvmArgs, Map<String, String> environment) throws Exception {
+        Path logFile = workDir.resolve(step + ".log");
+        ProcessBuilder builder = new ProcessBuilder(command(jvmArgs))
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile());
+        builder.environment().putAll(environment);
+
+        Process process = builder.start();
+        if (!process.waitFor(UNBUDGETED_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            process.destroyForcibly();
+            fail(step + " did not finish within " + UNBUDGETED_TIMEOUT_MS + " ms, see " + logFile);
+        }
+        assertEquals(0, process.exitValue(), step + " failed, see " + logFile);
+    }
+
+    private List<String> command(List<String> jvmArgs) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        return command;
+    }
+
+    /**
+     * Configuration through the environment, as in the Docker image and docker-compose.yml
+     */
+    private Map<String, String> environment(String step, int port) {
+        Path storage = workDir.resolve(step);
+        return Map.of(
+                "SPRING_PROFILES_ACTIVE", "fast-start",
+                "SERVER_PORT", String.valueOf(port),
+                "ROLLUP_STORAGE_PATH", storage.resolve("rollup").toString(),
+                "FIRMWARE_STORAGE_PATH", storage.resolve("firmware").toString());
+    }
+
+    private static boolean connects(HttpClient client, URI uri) {
+        try {
+            WebSocket webSocket = client.newWebSocketBuilder()
+                    .connectTimeout(Duration.ofMillis(500))
+                    .buildAsync(uri, new WebSocket.Listener() { })
+                    .get(1, TimeUnit.SECONDS);
+            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.fitznet.fun.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import org.fitznet.fun.dto.ButtonEvent;
+import org.fitznet.fun.dto.ButtonEventDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+/**
+ * Compares the per-message logging cost of the WebSocket handler before and after
+ * EventLogService. All variants write to a file appender so the console is not the bottleneck.
+ * The unlimited variant logs every event, so it shows the cost of queueing plus the background
+ * write; the default-limit variant shows what production does under a press storm.
+ * Every figure covers only the timed iterations, the warmup's queued lines are written first.
+ * Run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+class EventLogBenchmarkTest {
+
+    private static final int DEVICES = 20;
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    @TempDir
+    Path logDir;
+
+    @Test
+    void compareHotPathLoggingCost() {
+        String[] payloads = new String[DEVICES];
+        ButtonEventDto[] events = new ButtonEventDto[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            payloads[i] = "{\"buttonEvent\":\"PRESSED\",\"deviceId\":\"bell-" + i + "\",\"firmwareVersion\":\"v1.0.0\"}";
+            events[i] = ButtonEventDto.builder()
+                    .buttonEvent(ButtonEvent.PRESSED)
+                    .deviceId("bell-" + i)
+                    .firmwareVersion("v1.0.0")
+                    .build();
+        }
+
+        Logger synchronous = fileLogger("benchmark.synchronous", logDir.resolve("synchronous.log"));
+        fileLogger("org.fitznet.fun.events", logDir.resolve("events.log"));
+
+        // The handler's logging before EventLogService: three synchronous INFO lines per message
+        IntConsumer synchronousHotPath = i -> {
+            ButtonEventDto event = events[i % DEVICES];
+            synchronous.info("Received message from client {}: {}", "session-" + (i % DEVICES), payloads[i % DEVICES]);
+            synchronous.info("Parsed message: {}", event);
+            synchronous.info("Broadcasting message to connected clients: {}", event);
+        };
+        warmup(synchronousHotPath);
+        double synchronousNs = timed(synchronousHotPath);
+        System.out.printf("%-32s %8.1f ns/message (caller)  %8.1f ns/message (incl. write)  logged=%d%n",
+                          "Synchronous INFO logging", synchronousNs, synchronousNs, 3L * (WARMUP + ITERATIONS));
+
+        // No rate limit and a queue that never fills: every event is queued and written
+        runEventLog("EventLogService, unlimited", events,
+                new EventLogService(1.0, Integer.MAX_VALUE, 10_000, WARMUP + ITERATIONS, System::currentTimeMillis));
+
+        // Production defaults: most events of a storm only count towards the summary
+        runEventLog("EventLogService, 2/s per device", events,
+                new EventLogService(1.0, 2, 10_000, 1024, System::currentTimeMillis));
+    }
+
+    private static void runEventLog(String name, ButtonEventDto[] events, EventLogService service) {
+        IntConsumer hotPath = i -> service.buttonEvent("session-" + (i % DEVICES), events[i % DEVICES]);
+        warmup(hotPath);
+        awaitQueuedWritten(service);
+
+        long start = System.nanoTime();
+        double callerNs = timed(hotPath);
+        // close() waits for the writer thread and writes whatever is still queued
+        service.close();
+        double totalNs = (double) (System.nanoTime() - start) / ITERATIONS;
+
+        EventLogService.Counters counters = service.counters();
+        System.out.printf("%-32s %8.1f ns/message (caller)  %8.1f ns/message (incl. write)  "
+                          + "logged=%d rate-limited=%d dropped=%d of %d%n",
+                          name, callerNs, totalNs,
+                          counters.logged(), counters.rateLimited(), counters.dropped(), counters.events());
+    }
+
+    private static void warmup(IntConsumer hotPath) {
+        for (int i = 0; i < WARMUP; i++) {
+            hotPath.accept(i);
+        }
+    }
+
+    /**
+     * Waits until the writer thread has caught up, so the timed run does not pay for the warmup's lines
+     */
+    private static void awaitQueuedWritten(EventLogService service) {
+        while (true) {
+            EventLogService.Counters counters = service.counters();
+            if (counters.logged() + counters.sampledOut() + counters.rateLimited() + counters.dropped()
+                    >= counters.events()) {
+                return;
+            }
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * @return average ns per call over the timed iterations
+     */
+    private static double timed(IntConsumer hotPath) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            hotPath.accept(i);
+        }
+        return (double) (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static Logger fileLogger(String name, Path file) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{ISO8601} %-5level [%thread] %logger - %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+
+        Logger logger = context.getLogger(name);
+        logger.setAdditive(false);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
@@ -0,0 +1,135 @@
+package org.fitznet.fun.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.fitznet.fun.dto.ButtonEvent;
+import org.fitznet.fun.dto.ButtonEventDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventLogServiceTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Logger logger;
+    private Level previousLevel;
+
+    @BeforeEach
+    void attachAppender() {
+        logger = (Logger) LoggerFactory.getLogger("org.fitznet.fun.events");
+        previousLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detachAppender() {
+        logger.detachAppender(appender);
+        logger.setLevel(previousLevel);
+    }
+
+    @Test
+    void limitsLinesPerDevicePerSecond() {
+        EventLogService service = new EventLogService(1.0, 2, 10_000, 1024, clock::get);
+        for (int i = 0; i < 10; i++) {
+            service.buttonEvent("s1", event("bell-1"));
+            service.buttonEvent("s2", event("bell-2"));
+        }
+        clock.addAndGet(1000);
+        for (int i = 0; i < 10; i++) {
+            service.buttonEvent("s1", event("bell-1"));
+        }
+        service.close();
+
+        assertEquals(4, eventLines("device=bell-1 ").size());
+        assertEquals(2, eventLines("device=bell-2 ").size());
+
+        EventLogService.Counters counters = service.counters();
+        assertEquals(30, counters.events());
+        assertEquals(6, counters.logged());
+        assertEquals(24, counters.rateLimited());
+    }
+
+    @Test
+    void summaryCountsEventsThatWereSampledOut() {
+        EventLogService service = new EventLogService(0.0, 2, 10_000, 1024, clock::get);
+        for (int i = 0; i < 5; i++) {
+            service.buttonEvent("s1", event("bell-1"));
+            service.buttonEvent("s2", event("bell-2"));
+            service.firmwareCheck("bell-3", "v1.0.0", "v1.0.0", true);
+        }
+        service.logSummary();
+        service.close();
+
+        assertTrue(eventLines("").isEmpty());
+        List<String> summaries = messages().stream()
+                .filter(message -> message.contains("events from"))
+                .toList();
+        assertEquals(1, summaries.size());
+        assertTrue(summaries.get(0).startsWith("15 events from 3 devices"), summaries.get(0));
+        assertTrue(summaries.get(0).contains("sampled=15"), summaries.get(0));
+    }
+
+    @Test
+    void escapesValuesSoTheyCannotForgeFieldsOrLines() {
+        EventLogService service = new EventLogService(1.0, 2, 10_000, 1024, clock::get);
+        service.buttonEvent("s1", event("bell \"1\" event=FAKE\nevent=PRESSED device=admin {}"));
+        service.close();
+
+        List<String> lines = eventLines("");
+        assertEquals(1, lines.size());
+        assertEquals("event=PRESSED device=\"bell \\\"1\\\" event=FAKE\\u000aevent=PRESSED device=admin {}\" "
+                     + "session=s1 version=v1.0.0", lines.get(0));
+    }
+
+    @Test
+    void errorsAreAlwaysLoggedWithStackTrace() {
+        EventLogService service = new EventLogService(0.0, 0, 10_000, 1, clock::get);
+        IllegalStateException failure = new IllegalStateException("bad payload");
+
+        service.error("Error handling message", "s1", "{not json", failure);
+        service.close();
+
+        List<ILoggingEvent> errors = appender.list.stream()
+                .filter(event -> event.getLevel() == Level.ERROR)
+                .toList();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getFormattedMessage().contains("payload={not json"));
+        assertNotNull(errors.get(0).getThrowableProxy());
+        assertEquals(IllegalStateException.class.getName(), errors.get(0).getThrowableProxy().getClassName());
+    }
+
+    private static ButtonEventDto event(String deviceId) {
+        return ButtonEventDto.builder()
+                .buttonEvent(ButtonEvent.PRESSED)
+                .deviceId(deviceId)
+                .firmwareVersion("v1.0.0")
+                .build();
+    }
+
+    private List<String> messages() {
+        return appender.list.stream()
+                .map(ILoggingEvent::getFormattedMessage)
+                .toList();
+    }
+
+    private List<String> eventLines(String contains) {
+        return messages().stream()
+                .filter(message -> message.startsWith("event=") && message.contains(contains))
+                .toList();
+    }
+}
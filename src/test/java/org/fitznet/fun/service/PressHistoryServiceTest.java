@@ -0,0 +1,77 @@
+package org.fitznet.fun.service;
+
+import org.fitznet.fun.dto.PressHistoryDto;
+import org.fitznet.fun.store.RollupResolution;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PressHistoryServiceTest {
+
+    private static final long IDLE_MS = 86_400_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsPressesIntoHistory() {
+        PressHistoryService service = new PressHistoryService(directory.resolve("rollup").toString(), 4, 60, 24, 10, IDLE_MS);
+        try {
+            assertTrue(service.isEnabled());
+            service.recordPress("bell");
+            service.recordPress("bell");
+
+            long now = System.currentTimeMillis();
+            PressHistoryDto history = service.getHistory(null, RollupResolution.DAY, now, now);
+            assertEquals(1, history.getDevices().size());
+            assertEquals(2L, history.getDevices().get(0).getTotal());
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void degradesToNoOpWhenStoreCannotBeOpened() throws Exception {
+        // A regular file where the storage directory should be, like an unwritable volume
+        Path blocked = Files.createFile(directory.resolve("rollup"));
+
+        PressHistoryService service = new PressHistoryService(blocked.toString(), 4, 60, 24, 10, IDLE_MS);
+        assertFalse(service.isEnabled());
+
+        service.recordPress("bell");
+        service.compact();
+        long now = System.currentTimeMillis();
+        PressHistoryDto history = service.getHistory("bell", RollupResolution.HOUR, now, now);
+        assertTrue(history.getDevices().isEmpty());
+        assertEquals(RollupResolution.HOUR, history.getResolution());
+
+        service.close();
+    }
+
+    @Test
+    void disablesHistoryInsteadOfWipingItWhenLayoutChanges() {
+        String path = directory.resolve("rollup").toString();
+        PressHistoryService service = new PressHistoryService(path, 4, 60, 24, 10, IDLE_MS);
+        service.recordPress("bell");
+        service.close();
+
+        PressHistoryService resized = new PressHistoryService(path, 8, 60, 24, 10, IDLE_MS);
+        assertFalse(resized.isEnabled());
+        resized.close();
+
+        PressHistoryService reopened = new PressHistoryService(path, 4, 60, 24, 10, IDLE_MS);
+        try {
+            long now = System.currentTimeMillis();
+            PressHistoryDto history = reopened.getHistory("bell", RollupResolution.DAY, now, now);
+            assertEquals(1L, history.getDevices().get(0).getTotal());
+        } finally {
+            reopened.close();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.fitznet.fun.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollupStoreTest {
+
+    private static final long HOUR = RollupResolution.HOUR.getBucketMillis();
+    private static final long DAY = RollupResolution.DAY.getBucketMillis();
+    private static final long START = 1_700_000_000_000L - (1_700_000_000_000L % DAY);
+    private static final long MINUTE = RollupResolution.MINUTE.getBucketMillis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void downsamplesPressesIntoEveryResolution() throws Exception {
+        try (RollupStore store = new RollupStore(directory, 4, 240, 48, 10, HOUR)) {
+            store.record("bell-1", START);
+            store.record("bell-1", START + 30_000);
+            store.record("bell-1", START + HOUR + 5);
+            store.record("bell-2", START + 2 * HOUR);
+
+            assertArrayEquals(new long[]{2, 0}, store.series("bell-1", RollupResolution.MINUTE, START, START + 60_000));
+            assertArrayEquals(new long[]{2, 1, 0}, store.series("bell-1", RollupResolution.HOUR, START, START + 2 * HOUR));
+            assertArrayEquals(new long[]{3}, store.series("bell-1", RollupResolution.DAY, START, START));
+            assertArrayEquals(new long[]{0, 0, 1}, store.series("bell-2", RollupResolution.HOUR, START, START + 2 * HOUR));
+            assertNull(store.series("unknown", RollupResolution.HOUR, START, START));
+        }
+    }
+
+    @Test
+    void clampsQueriesToRetentionAndIgnoresWrappedBuckets() throws Exception {
+        try (RollupStore store = new RollupStore(directory, 2, 60, 4, 10, HOUR)) {
+            store.record("bell", START);
+            store.record("bell", START + 5 * HOUR);
+
+            // Only the last four hours are retained, so the press in hour 0 falls outside the window
+            assertArrayEquals(new long[]{0, 0, 0, 1}, store.series("bell", RollupResolution.HOUR, START, START + 5 * HOUR));
+
+            // A late press for an hour that already wrapped out of the ring is not counted
+            store.record("bell", START + HOUR);
+            assertArrayEquals(new long[]{0, 0, 0, 1}, store.series("bell", RollupResolution.HOUR, START, START + 5 * HOUR));
+        }
+    }
+
+    @Test
+    void persistsAcrossReopen() throws Exception {
+        try (RollupStore store = new RollupStore(directory, 4, 60, 48, 10, HOUR)) {
+            store.record("bell", START);
+            store.record("bell", START + 1);
+        }
+
+        try (RollupStore store = new RollupStore(directory, 4, 60, 48, 10, HOUR)) {
+            assertEquals(1, store.getDeviceIds().size());
+            assertArrayEquals(new long[]{2}, store.series("bell", RollupResolution.HOUR, START, START));
+        }
+    }
+
+    @Test
+    void releasesSlotsOfDevicesWithoutHistoryOnCompaction() throws Exception {
+        try (RollupStore store = new RollupStore(directory, 2, 60, 48, 2, HOUR)) {
+            assertTrue(store.record("old", START));
+            assertTrue(store.record("recent", START + 4 * DAY));
+
+            assertEquals(1, store.compact(START + 5 * DAY));
+            assertEquals(List.of("recent"), store.getDeviceIds());
+        }
+    }
+
+    @Test
+    void refusesToOpenWithDifferentLayout() throws Exception {
+        try (RollupStore store = new RollupStore(directory, 4, 60, 48, 10, HOUR)) {
+            store.record("bell", START);
+        }
+
+        assertThrows(IOException.class, () -> new RollupStore(directory, 8, 60, 48, 10, HOUR));
+        assertThrows(IOException.class, () -> new RollupStore(directory, 4, 60, 24, 10, HOUR));
+
+        // The failed opens left the files untouched
+        try (RollupStore store = new RollupStore(directory, 4, 60, 48, 10, HOUR)) {
+            assertArrayEquals(new long[]{1}, store.series("bell", RollupResolution.HOUR, START, START));
+        }
+    }
+
+    @Test
+    void evictsOnlyIdleDevicesWhenFull() throws Exception {
+        try (RollupStore store = new RollupStore(directory, 2, 240, 48, 10, HOUR)) {
+            assertTrue(store.record("typo", START));
+            assertTrue(store.record("bell", START + HOUR));
+            assertTrue(store.record("bell", START + 2 * HOUR));
+
+            // typo has been idle for two hours, so it makes room
+            assertTrue(store.record("new-bell", START + 2 * HOUR + 1));
+            assertEquals(List.of("bell", "new-bell"), store.getDeviceIds());
+            assertNull(store.series("typo", RollupResolution.HOUR, START, START));
+
+            // Every remaining device pressed within the last hour, so a new id is dropped instead
+            assertFalse(store.record("flood", START + 2 * HOUR + 2));
+            assertEquals(List.of("bell", "new-bell"), store.getDeviceIds());
+            assertEquals(1, store.takeDroppedPresses());
+            assertEquals(0, store.takeDroppedPresses());
+
+            // The index is written by compaction or close, not on every registration
+            assertFalse(Files.exists(directory.resolve(RollupStore.DEVICE_INDEX_FILE)));
+            assertTrue(store.record("new-bell", START + 3 * HOUR));
+        }
+
+        // Recency survives a restart, so the next eviction still picks the oldest idle device
+        try (RollupStore store = new RollupStore(directory, 2, 240, 48, 10, HOUR)) {
+            assertEquals(List.of("bell", "new-bell"), store.getDeviceIds());
+            assertTrue(store.record("another-bell", START + 3 * HOUR + MINUTE));
+            assertEquals(List.of("another-bell", "new-bell"), store.getDeviceIds());
+            assertArrayEquals(new long[]{0}, store.series("another-bell", RollupResolution.HOUR, START + HOUR, START + HOUR));
+        }
+    }
+}